@@ -0,0 +1,324 @@
+package project3;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This is the skeleton of a list whose elements are maintained in ascending order
+ * based on their natural order. It holds no elements itself: implementations supply
+ * the storage and the operations on it, and inherit the ones built on top of those,
+ * namely conditional adds, range views, equality and the string representation.
+ * Elements that compare as equal are kept in the order in which they were added.
+ * This list does not allow <code>null</code> elements.
+ *
+ * @author Leyan Yu
+ *
+ * @param <E> the type of elements held in this list
+ */
+public abstract class AbstractSortedList<E extends Comparable<E>> implements Iterable<E> {
+
+    /**
+     * Adds the specified element to the list in ascending order, after any equal elements.
+     *
+     * @param element the element to add
+     * @return <code>true</code> if the element was added successfully,
+     * <code>false</code> otherwise (if <code>element==null</code>)
+     */
+    public abstract boolean add(E element);
+
+    /**
+     * Adds the specified element to the list only if an equal element is not already present.
+     *
+     * @param element the element to add
+     * @return <code>true</code> if the element was added,
+     * <code>false</code> if it is <code>null</code> or already in the list
+     */
+    public boolean addIfAbsent(E element) {
+        if (element == null || contains(element)) {
+            return false;
+        }
+        return add(element);
+    }
+
+    /**
+     * Removes all elements from the list.
+     */
+    public abstract void clear();
+
+    /**
+     * Returns <code>true</code> if the list contains the specified element,
+     * <code>false</code> otherwise.
+     *
+     * @param o the element to search for
+     * @return <code>true</code> if the element is in the list,
+     * <code>false</code> otherwise
+     */
+    public abstract boolean contains(Object o);
+
+    /**
+     * Returns the element at the specified index in the list.
+     *
+     * @param index the index of the element to return
+     * @return the element at the specified index
+     * @throws IndexOutOfBoundsException if the index is out of
+     * range <code>(index < 0 || index >= size())</code>
+     */
+    public abstract E get(int index) throws IndexOutOfBoundsException;
+
+    /**
+     * Returns the first (lowest) element in the list.
+     *
+     * @return the first element in the list
+     * @throws NoSuchElementException if the list is empty
+     */
+    public abstract E first() throws NoSuchElementException;
+
+    /**
+     * Returns the last (highest) element in the list.
+     *
+     * @return the last element in the list
+     * @throws NoSuchElementException if the list is empty
+     */
+    public abstract E last() throws NoSuchElementException;
+
+    /**
+     * Returns the greatest element in the list less than or equal to the given key,
+     * or <code>null</code> if there is no such element.
+     *
+     * @param key the key to search for
+     * @return the last element not greater than <code>key</code>, or <code>null</code>
+     */
+    public abstract E floor(E key);
+
+    /**
+     * Returns the least element in the list greater than or equal to the given key,
+     * or <code>null</code> if there is no such element.
+     *
+     * @param key the key to search for
+     * @return the first element not less than <code>key</code>, or <code>null</code>
+     */
+    public abstract E ceiling(E key);
+
+    /**
+     * Returns the greatest element in the list strictly less than the given key,
+     * or <code>null</code> if there is no such element.
+     *
+     * @param key the key to search for
+     * @return the last element less than <code>key</code>, or <code>null</code>
+     */
+    public abstract E lower(E key);
+
+    /**
+     * Returns the least element in the list strictly greater than the given key,
+     * or <code>null</code> if there is no such element.
+     *
+     * @param key the key to search for
+     * @return the first element greater than <code>key</code>, or <code>null</code>
+     */
+    public abstract E higher(E key);
+
+    /**
+     * Returns the index of the first occurrence of the specified element in the list,
+     * or -1 if the element is not in the list.
+     *
+     * @param o the element to search for
+     * @return the index of the first occurrence of the element,
+     * or -1 if the element is not in the list
+     */
+    public abstract int indexOf(Object o);
+
+    /**
+     * Returns the index of the first occurrence of the specified element in the list,
+     * starting at the specified <code>index</code>, or -1 if the element is not in the list
+     * in the range of indexes <code>index <= i < size()</code>.
+     *
+     * @param o the element to search for
+     * @param index the index to start searching from
+     * @return the index of the first occurrence of the element, starting at the specified index,
+     * or -1 if the element is not found
+     */
+    public abstract int nextIndexOf(Object o, int index);
+
+    /**
+     * Removes the first occurence of the specified element from the list.
+     *
+     * @param o the element to remove
+     * @return <code>true</code> if the element was removed successfully,
+     * <code>false</code> otherwise
+     */
+    public abstract boolean remove(Object o);
+
+    /**
+     * Returns the size of the list.
+     *
+     * @return the size of the list
+     */
+    public abstract int size();
+
+    /**
+     * Returns an iterator over the elements in the list in ascending order.
+     *
+     * @return an iterator over the elements in the list
+     */
+    public abstract Iterator<E> iterator();
+
+    /**
+     * Returns an iterator over the elements in the list in descending order.
+     *
+     * @return a descending iterator over the elements in the list
+     */
+    public abstract Iterator<E> descendingIterator();
+
+    /**
+     * Returns an iterator over the elements between <code>from</code> and <code>to</code>,
+     * which back the range views of this list. A <code>null</code> bound leaves that end of
+     * the range open.
+     *
+     * @param from the low endpoint of the range, or <code>null</code>
+     * @param fromInclusive <code>true</code> if the low endpoint is included in the range
+     * @param to the high endpoint of the range, or <code>null</code>
+     * @param toInclusive <code>true</code> if the high endpoint is included in the range
+     * @param ascending <code>true</code> to iterate in ascending order, <code>false</code> for descending
+     * @return an iterator over the elements in the range
+     */
+    protected abstract Iterator<E> rangeIterator(E from, boolean fromInclusive, E to, boolean toInclusive,
+                                                 boolean ascending);
+
+    /**
+     * Returns a view of the elements less than (or equal to, if <code>inclusive</code>) <code>to</code>.
+     *
+     * @param to the high endpoint of the view
+     * @param inclusive <code>true</code> if the high endpoint is included in the view
+     * @return a lazy view of the matching portion of this list
+     */
+    public View headView(E to, boolean inclusive) {
+        return new View(null, false, to, inclusive);
+    }
+
+    /**
+     * Returns a view of the elements greater than (or equal to, if <code>inclusive</code>) <code>from</code>.
+     *
+     * @param from the low endpoint of the view
+     * @param inclusive <code>true</code> if the low endpoint is included in the view
+     * @return a lazy view of the matching portion of this list
+     */
+    public View tailView(E from, boolean inclusive) {
+        return new View(from, inclusive, null, false);
+    }
+
+    /**
+     * Returns a view of the elements ranging from <code>from</code> to <code>to</code>.
+     *
+     * @param from the low endpoint of the view
+     * @param fromInclusive <code>true</code> if the low endpoint is included in the view
+     * @param to the high endpoint of the view
+     * @param toInclusive <code>true</code> if the high endpoint is included in the view
+     * @return a lazy view of the matching portion of this list
+     */
+    public View subView(E from, boolean fromInclusive, E to, boolean toInclusive) {
+        return new View(from, fromInclusive, to, toInclusive);
+    }
+
+    /**
+     * Compares the specified object with this list for equality.
+     *
+     * @param o the object to compare with
+     * @return <code>true</code> if the specified object is equal to this list,
+     * <code>false</code> otherwise
+     */
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+
+        if (!(o instanceof AbstractSortedList)) {
+            return false;
+        }
+
+        AbstractSortedList<?> other = (AbstractSortedList<?>) o;
+
+        if (size() != other.size()) {
+            return false;
+        }
+
+        Iterator<E> it1 = iterator();
+        Iterator<?> it2 = other.iterator();
+
+        while (it1.hasNext() && it2.hasNext()) {
+            if (!it1.next().equals(it2.next())) {
+                return false;
+            }
+        }
+
+        return !it1.hasNext() && !it2.hasNext();
+    }
+
+    /**
+     * Returns a string representation of the list.
+     *  The string representation consists of a list of the lists's elements in
+     *  ascending order, enclosed in square brackets ("[]").
+     *  Adjacent elements are separated by the characters ", " (comma and space).
+     *
+     * @return a string representation of the list
+     */
+    public String toString() {
+        StringBuilder result = new StringBuilder("[");
+        for (E element : this) {
+            result.append(element).append(", ");
+        }
+        if (size() > 0) {
+            result.setLength(result.length() - 2); // Remove trailing comma and space
+        }
+        result.append("]");
+        return result.toString();
+    }
+
+    /**
+     * A lazy view of a range of this list. The view copies nothing: its boundaries are
+     * located each time it is iterated, so it reflects later changes to the list.
+     */
+    public class View implements Iterable<E> {
+        private E from;
+        private boolean fromInclusive;
+        private E to;
+        private boolean toInclusive;
+
+        private View(E from, boolean fromInclusive, E to, boolean toInclusive) {
+            if (from != null && to != null && from.compareTo(to) > 0) {
+                throw new IllegalArgumentException("Range start is after range end");
+            }
+            this.from = from;
+            this.fromInclusive = fromInclusive;
+            this.to = to;
+            this.toInclusive = toInclusive;
+        }
+
+        /**
+         * Returns <code>true</code> if the view contains no elements.
+         *
+         * @return <code>true</code> if the view is empty
+         */
+        public boolean isEmpty() {
+            return !iterator().hasNext();
+        }
+
+        /**
+         * Returns an iterator over the elements in the view in ascending order.
+         *
+         * @return an iterator over the elements in the view
+         */
+        @Override
+        public Iterator<E> iterator() {
+            return rangeIterator(from, fromInclusive, to, toInclusive, true);
+        }
+
+        /**
+         * Returns an iterator over the elements in the view in descending order.
+         *
+         * @return a descending iterator over the elements in the view
+         */
+        public Iterator<E> descendingIterator() {
+            return rangeIterator(from, fromInclusive, to, toInclusive, false);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package project3;
+
+import java.util.NoSuchElementException;
+
+/**
+ * The DurationSketch class is a mergeable histogram of session durations for estimating quantiles.
+ * Durations are counted in log-linear buckets, as in an HDR histogram: every power-of-two range is
+ * split into 8 equal sub-buckets. An estimate is the top of the bucket holding the true value,
+ * capped at the largest duration recorded, so it is never below the true value and at most
+ * 12.5% above it.
+ * Durations of 2^40 ms (about 35 years) or more share the top bucket, whose estimate is the
+ * largest duration recorded.
+ * Only the span of buckets between the shortest and the longest duration recorded is stored, so
+ * a sketch of a few similar sessions stays small. Recording and merging take constant time once
+ * the span covers the durations, and the memory used does not depend on the number of durations
+ * recorded.
+ *
+ * @author Leyan Yu
+ */
+public class DurationSketch {
+    // Each power-of-two range is split into 2^SUB_BUCKET_BITS sub-buckets
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Durations from this one up all fall in the top bucket
+    private static final long MAX_BUCKETED_DURATION = 1L << 40;
+    private static final int TOP_BUCKET = bucketOf(MAX_BUCKETED_DURATION);
+
+    // Counts of the buckets from offset to offset + counts.length - 1, empty until a duration is recorded
+    private long[] counts;
+    private int offset;
+    private long count;
+    private long max;
+
+    public DurationSketch() {
+        counts = new long[0];
+        offset = 0;
+        count = 0;
+        max = Long.MIN_VALUE;
+    }
+
+    /**
+     * Constructs a copy of the specified sketch.
+     *
+     * @param other the sketch to copy.
+     */
+    public DurationSketch(DurationSketch other) {
+        counts = other.counts.clone();
+        offset = other.offset;
+        count = other.count;
+        max = other.max;
+    }
+
+    /**
+     * Records a duration in the sketch.
+     *
+     * @param duration the duration in milliseconds.
+     * @throws IllegalArgumentException if the duration is negative.
+     */
+    public void record(long duration) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Duration cannot be negative.");
+        }
+        int bucket = Math.min(bucketOf(duration), TOP_BUCKET);
+        cover(bucket, bucket);
+        counts[bucket - offset]++;
+        count++;
+        max = Math.max(max, duration);
+    }
+
+    /**
+     * Adds all durations recorded in the specified sketch to this sketch.
+     *
+     * @param other the sketch to merge into this one.
+     */
+    public void merge(DurationSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        cover(other.offset, other.offset + other.counts.length - 1);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[other.offset - offset + i] += other.counts[i];
+        }
+        count += other.count;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns the number of durations recorded in the sketch.
+     *
+     * @return the number of durations.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns an estimate of the duration at the specified quantile, e.g. 0.95 for the 95th percentile.
+     *
+     * @param quantile the quantile, between 0 and 1.
+     * @return the estimated duration in milliseconds at the quantile, never below the true one.
+     * @throws IllegalArgumentException if the quantile is not between 0 and 1.
+     * @throws NoSuchElementException if no durations have been recorded.
+     */
+    public long getQuantile(double quantile) {
+        if (quantile < 0 || quantile > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1.");
+        }
+        if (count == 0) {
+            throw new NoSuchElementException("No durations recorded.");
+        }
+
+        // Rank of the requested duration, counting from 1
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        int i = 0;
+        for (; i < counts.length - 1; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                break;
+            }
+        }
+        int bucket = offset + i;
+        if (bucket == TOP_BUCKET) {
+            return max;
+        }
+        // Report the top of the bucket, within the range actually recorded
+        return Math.min(max, highestOf(bucket));
+    }
+
+    /* Widens the stored span of buckets, if needed, to include the buckets from low to high. */
+    private void cover(int low, int high) {
+        if (counts.length == 0) {
+            counts = new long[high - low + 1];
+            offset = low;
+            return;
+        }
+        int newLow = Math.min(low, offset);
+        int newHigh = Math.max(high, offset + counts.length - 1);
+        if (newLow == offset && newHigh == offset + counts.length - 1) {
+            return;
+        }
+        long[] newCounts = new long[newHigh - newLow + 1];
+        System.arraycopy(counts, 0, newCounts, offset - newLow, counts.length);
+        counts = newCounts;
+        offset = newLow;
+    }
+
+    /* Returns the bucket holding the given non-negative value. */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /* Returns the smallest value falling in the given bucket. */
+    private static long lowestOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /* Returns the largest value falling in the given bucket. */
+    private static long highestOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return lowestOf(bucket) + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -1,10 +1,22 @@
 package project3;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 /**
  * The LoginStats class is responsible for reading the data file,
@@ -15,49 +27,83 @@ import java.util.Scanner;
 public class LoginStats {
     /**
      * The main method of the LoginStats class.
-     * It reads the data file, creates Record objects and adds them to a RecordList.
+     * It reads the data files, creates Record objects and adds them to one RecordList per file.
+     * The files are loaded in parallel and queried together through a ShardedRecordList.
      * It handles IOExceptions that may occur during file reading.
      *
-     * @param args the command line arguments. args[0] is expected to be the name of the data file.
+     * @param args the command line arguments. args are expected to be the names of the data files
+     *             or of directories holding them, optionally preceded by the --dedup flag to drop
+     *             duplicate log lines. Deduplication applies within each file only; a file that is
+     *             named more than once, directly or through its directory, is loaded once.
      */
     public static void main(String[] args) {
-        if (args.length != 1) {
-            System.err.println("Usage Error: the program expects a file name as an argument.");
+        boolean deduplicate = args.length > 0 && "--dedup".equals(args[0]);
+        int firstSource = deduplicate ? 1 : 0;
+        if (args.length <= firstSource) {
+            System.err.println("Usage Error: the program expects file or directory names as arguments.");
             System.exit(1); // Terminate with an error code
         }
 
-        String fileName = args[0];
-        BufferedReader reader;
-        RecordList recordList = new RecordList();
+        List<String> fileNames = new ArrayList<>();
+        HashSet<String> canonicalPaths = new HashSet<>();
+        for (int i = firstSource; i < args.length; i++) {
+            File source = new File(args[i]);
+            File[] files = source.isDirectory() ? source.listFiles(File::isFile) : null;
+            if (files == null) {
+                files = new File[] {source};
+            }
+            Arrays.sort(files);
+            for (File file : files) {
+                // Skip files that were already named, so that they are not counted twice
+                if (canonicalPaths.add(canonicalPath(file))) {
+                    fileNames.add(file.getPath());
+                }
+            }
+        }
+        if (fileNames.isEmpty()) {
+            System.err.println("Usage Error: no data files were found.");
+            System.exit(1); // Terminate with an error code
+        }
 
-        // Handle file open and read errors
+        // Load every file into its own shard in parallel
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(fileNames.size(), Runtime.getRuntime().availableProcessors()));
+        List<Future<RecordList>> loads = new ArrayList<>();
+        for (String fileName : fileNames) {
+            loads.add(executor.submit(() -> load(fileName, deduplicate)));
+        }
+        List<RecordList> shards = new ArrayList<>();
         try {
-            reader = new BufferedReader(new FileReader(fileName));
-            String line = reader.readLine();
-            // Read and process the file data
-            while (line != null) {
-                String[] words = line.split(" ");
-                int terminal = Integer.parseInt(words[0]);
-                long time = Long.parseLong(words[1]);
-                String username = words[2];
-                boolean isLogin = terminal > 0;
-                Date date = new Date(time);
-                Record record = new Record(Math.abs(terminal), isLogin, username, date);
-                recordList.add(record);
-                line = reader.readLine();
+            for (int i = 0; i < loads.size(); i++) {
+                try {
+                    shards.add(loads.get(i).get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        System.err.println("Error: the file " + fileNames.get(i) + " cannot be opened.");
+                    } else {
+                        System.err.println("Error: the file " + fileNames.get(i) + " cannot be read: "
+                                + e.getCause().getMessage());
+                    }
+                    System.exit(1); // Terminate with an error code
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    System.exit(1); // Terminate with an error code
+                }
             }
-            reader.close();
-        } catch (IOException e) {
-            System.err.println("Error: the file " + fileName + " cannot be opened.");
-            System.exit(1); // Terminate with an error code
+        } finally {
+            // Stop the pool even on failure, so its threads do not keep the program alive
+            executor.shutdownNow();
         }
+        ShardedRecordList recordList = new ShardedRecordList(shards);
 
         System.out.println("Welcome to Login Stats!\n");
         System.out.println("Available commands:");
         System.out.println("  first USERNAME   - retrieves first login session for the USER");
         System.out.println("  last USERNAME    - retrieves last login session for the USER");
-        System.out.println("  all USERNAME       - retrieves all login sessions for the USER");
+        System.out.println("  all USERNAME [N]   - retrieves all (or the first N) login sessions for the USER");
         System.out.println("  total USERNAME - retrieves total login time for the USER");
+        System.out.println("  percentiles USERNAME - retrieves p50/p95/p99 session length for the USER");
+        System.out.println("  fleet            - retrieves p50/p95/p99 session length across all users");
         System.out.println("  quit             - terminates this program");
         System.out.println();
 
@@ -69,6 +115,14 @@ public class LoginStats {
             if("quit".equals(command)) {
                 break;
             }
+            if ("fleet".equals(command)) {
+                try {
+                    printPercentiles("all users", recordList.getSessionDurations());
+                } catch (NoSuchElementException e) {
+                    System.out.println("No completed sessions found.");
+                }
+                continue;
+            }
             String username = inputs[1];
             if ("first".equals(command)) {
                 Session session = recordList.getFirstSession(username);
@@ -80,26 +134,136 @@ public class LoginStats {
                 checkSession(session,username);
                 System.out.println(session);
             } else if ("all".equals(command)) {
-                SortedLinkedList<Session> sessions = recordList.getAllSessions(username);
-                for (Session session : sessions) {
-                    System.out.println(session);
+                // Print the sessions as they are found, up to the optional limit
+                Stream<Session> sessions = recordList.streamSessions(username);
+                if (inputs.length > 2) {
+                    long limit = parseLimit(inputs[2]);
+                    if (limit <= 0) {
+                        System.out.println("This is not a valid command. Try again.");
+                        continue;
+                    }
+                    sessions = sessions.limit(limit);
+                }
+                Iterator<Session> it = sessions.iterator();
+                if (!it.hasNext()) {
+                    checkSession(null, username);
+                }
+                while (it.hasNext()) {
+                    System.out.println(it.next());
                 }
             } else if ("total".equals(command)) {
                 long totalTime = recordList.getTotalTime(username);
-                long days = totalTime / (24 * 60 * 60 * 1000);
-                long duration = totalTime % (24 * 60 * 60 * 1000);
-                long hours = duration / (60 * 60 * 1000);
-                duration = duration % (60 * 60 * 1000);
-                long minutes = duration / (60 * 1000);
-                duration = duration % (60 * 1000);
-                long seconds = duration / 1000;
-                System.out.printf("%s, total duration %dd %dh %dm %ds\n", username, days, hours, minutes, seconds);
+                System.out.printf("%s, total duration %s\n", username, formatDuration(totalTime));
+            } else if ("percentiles".equals(command)) {
+                try {
+                    printPercentiles(username, recordList.getSessionDurations(username));
+                } catch (NoSuchElementException e) {
+                    // Active sessions have no length yet, so a known user may still have none to report
+                    if (recordList.containsUser(username)) {
+                        System.out.println("No completed sessions found for user " + username + ".");
+                    } else {
+                        checkSession(null, username);
+                    }
+                }
             } else {
                 System.out.println("This is not a valid command. Try again.");
             }
         }
     }
 
+    /**
+     * Parses the number of sessions to print.
+     *
+     * @param input the text given for the limit
+     * @return the limit, or -1 if the text is not a number
+     */
+    private static long parseLimit(String input) {
+        try {
+            return Long.parseLong(input);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Prints the p50, p95 and p99 session lengths from a duration sketch.
+     *
+     * @param name the user, or group of users, the sketch describes
+     * @param sketch the sketch of the session durations
+     */
+    private static void printPercentiles(String name, DurationSketch sketch) {
+        System.out.printf("%s, %d sessions, p50 %s, p95 %s, p99 %s\n", name, sketch.getCount(),
+                formatDuration(sketch.getQuantile(0.50)),
+                formatDuration(sketch.getQuantile(0.95)),
+                formatDuration(sketch.getQuantile(0.99)));
+    }
+
+    /**
+     * Formats a duration in milliseconds as days, hours, minutes and seconds.
+     *
+     * @param time the duration in milliseconds
+     * @return the formatted duration
+     */
+    private static String formatDuration(long time) {
+        long days = time / (24 * 60 * 60 * 1000);
+        long duration = time % (24 * 60 * 60 * 1000);
+        long hours = duration / (60 * 60 * 1000);
+        duration = duration % (60 * 60 * 1000);
+        long minutes = duration / (60 * 1000);
+        duration = duration % (60 * 1000);
+        long seconds = duration / 1000;
+        return String.format("%dd %dh %dm %ds", days, hours, minutes, seconds);
+    }
+
+    /**
+     * Reads a data file into a new RecordList.
+     *
+     * @param fileName the name of the data file
+     * @param deduplicate <code>true</code> to drop duplicate records
+     * @return the records of the file
+     * @throws IOException if the file cannot be opened or read
+     * @throws IllegalArgumentException if a line of the file is not a valid record
+     */
+    private static RecordList load(String fileName, boolean deduplicate) throws IOException {
+        RecordList recordList = new RecordList(deduplicate);
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String line = reader.readLine();
+            int lineNumber = 1;
+            // Read and process the file data
+            while (line != null) {
+                try {
+                    String[] words = line.split(" ");
+                    int terminal = Integer.parseInt(words[0]);
+                    long time = Long.parseLong(words[1]);
+                    String username = words[2];
+                    boolean isLogin = terminal > 0;
+                    Date date = new Date(time);
+                    Record record = new Record(Math.abs(terminal), isLogin, username, date);
+                    recordList.add(record);
+                } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                    throw new IllegalArgumentException("invalid record on line " + lineNumber + ": " + line, e);
+                }
+                line = reader.readLine();
+                lineNumber++;
+            }
+        }
+        return recordList;
+    }
+
+    /**
+     * Returns the canonical path of a file, or its absolute path if that cannot be determined.
+     *
+     * @param file the file
+     * @return the path identifying the file
+     */
+    private static String canonicalPath(File file) {
+        try {
+            return file.getCanonicalPath();
+        } catch (IOException e) {
+            return file.getAbsolutePath();
+        }
+    }
+
     /**
      * Checks if the session is null and prints a message if it is.
      *
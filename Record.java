@@ -1,6 +1,7 @@
 package project3;
 
 import java.util.Date;
+import java.util.Objects;
 
 /**
  * The Record class represents the individual records from the input log file.
@@ -73,4 +74,9 @@ public class Record implements Comparable<Record> {
                 this.getTime().equals(other.getTime());
     }
 
+    @Override
+    public int hashCode() {
+        // Hash the same fields that equals compares
+        return Objects.hash(login, terminal, username, time);
+    }
 }
@@ -1,17 +1,247 @@
 package project3;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * The RecordList class extends SortedLinkedList<Record> and provides methods to work with login sessions.
+ * The RecordList class is a sorted list of records that provides methods to work with login sessions.
+ * The records are stored in SortedTimestampLists keyed on their epoch milliseconds: one holding every
+ * record, which backs the list operations, and one per user, which the session queries scan so they
+ * only ever look at the records of the user they are asked about.
+ * Records with equal times are kept in the order in which they were added.
  *
  * @author Leyan Yu
  */
-public class RecordList extends SortedLinkedList<Record> {
+public class RecordList extends AbstractSortedList<Record> {
+    private boolean deduplicate;
+    // Hash index of the records in deduplicating mode. The records live in arrays rather than in
+    // list nodes, so a set of the records takes the place of the element-to-node index of an
+    // indexed SortedLinkedList
+    private HashSet<Record> hashIndex;
+    // All records keyed on their epoch milliseconds
+    private SortedTimestampList<Record> timeline = new SortedTimestampList<>();
+    // The records of each user keyed on their epoch milliseconds; a user without records has no entry
+    private HashMap<String, SortedTimestampList<Record>> userRecords = new HashMap<>();
+    // Session durations of each user, kept up to date as logout records close sessions
+    private HashMap<String, SessionTracker> trackers = new HashMap<>();
+
     // Default constructor to create an empty RecordList
     public RecordList() {
-        // Call the constructor of the parent class (SortedLinkedList) to initialize the list
-        super();
+    }
+
+    /**
+     * Constructs an empty RecordList, optionally dropping duplicate records as they are added.
+     * Deduplication is backed by a hash index of the records, which also answers membership tests
+     * and rejects the removal or lookup of absent records in expected constant time.
+     *
+     * @param deduplicate <code>true</code> to ignore records equal to one already in the list.
+     */
+    public RecordList(boolean deduplicate) {
+        this.deduplicate = deduplicate;
+        if (deduplicate) {
+            hashIndex = new HashSet<>();
+        }
+    }
+
+    /**
+     * Adds the record to the list in time order, after any records with the same time.
+     * In deduplicating mode, a record equal to one already in the list is ignored.
+     *
+     * @param record the record to add.
+     * @return <code>true</code> if the record was added, <code>false</code> otherwise.
+     */
+    @Override
+    public boolean add(Record record) {
+        if (record == null || (deduplicate && !hashIndex.add(record))) {
+            return false;
+        }
+        long time = record.getTime().getTime();
+        timeline.add(time, record);
+        userRecords.computeIfAbsent(record.getUsername(), name -> new SortedTimestampList<>()).add(time, record);
+
+        trackers.computeIfAbsent(record.getUsername(), name -> new SessionTracker()).update(record);
+        return true;
+    }
+
+    /**
+     * Removes the first occurrence of the record from the list.
+     * In deduplicating mode an absent record is rejected by the hash index without searching the list.
+     *
+     * @param o the record to remove.
+     * @return <code>true</code> if the record was removed, <code>false</code> otherwise.
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Record)) {
+            return false;
+        }
+        Record record = (Record) o;
+        if (deduplicate && !hashIndex.remove(record)) {
+            return false;
+        }
+        long time = record.getTime().getTime();
+        if (!timeline.remove(time, record)) {
+            return false;
+        }
+        SortedTimestampList<Record> records = userRecords.get(record.getUsername());
+        records.remove(time, record);
+        if (records.size() == 0) {
+            userRecords.remove(record.getUsername());
+        }
+        trackers.get(record.getUsername()).invalidate();
+        return true;
+    }
+
+    /**
+     * Removes all records from the list.
+     */
+    @Override
+    public void clear() {
+        timeline.clear();
+        userRecords.clear();
+        trackers.clear();
+        if (deduplicate) {
+            hashIndex.clear();
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the list contains the specified record.
+     * In deduplicating mode this is answered by the hash index, otherwise only the records
+     * with the same time are compared.
+     *
+     * @param o the record to search for.
+     * @return <code>true</code> if the record is in the list, <code>false</code> otherwise.
+     */
+    @Override
+    public boolean contains(Object o) {
+        if (deduplicate) {
+            return hashIndex.contains(o);
+        }
+        return indexOf(o) != -1;
+    }
+
+    /**
+     * Returns <code>true</code> if the list keeps a hash index of its records.
+     *
+     * @return <code>true</code> in deduplicating mode.
+     */
+    public boolean isIndexed() {
+        return deduplicate;
+    }
+
+    @Override
+    public Record get(int index) throws IndexOutOfBoundsException {
+        return timeline.get(index);
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return nextIndexOf(o, 0);
+    }
+
+    @Override
+    public int nextIndexOf(Object o, int index) {
+        if (!(o instanceof Record) || index < 0 || index >= size()) {
+            return -1;
+        }
+        if (deduplicate && !hashIndex.contains(o)) {
+            return -1;
+        }
+        return timeline.indexOf(((Record) o).getTime().getTime(), o, index);
+    }
+
+    @Override
+    public int size() {
+        return timeline.size();
+    }
+
+    @Override
+    public Iterator<Record> iterator() {
+        return timeline.iterator();
+    }
+
+    @Override
+    public Iterator<Record> descendingIterator() {
+        return timeline.descendingIterator();
+    }
+
+    @Override
+    public Record first() throws NoSuchElementException {
+        if (size() == 0) {
+            throw new NoSuchElementException("The list is empty");
+        }
+        return timeline.get(0);
+    }
+
+    @Override
+    public Record last() throws NoSuchElementException {
+        if (size() == 0) {
+            throw new NoSuchElementException("The list is empty");
+        }
+        return timeline.get(size() - 1);
+    }
+
+    @Override
+    public Record floor(Record key) {
+        return elementAt(timeline.upperBound(key.getTime().getTime()) - 1);
+    }
+
+    @Override
+    public Record ceiling(Record key) {
+        return elementAt(timeline.lowerBound(key.getTime().getTime()));
+    }
+
+    @Override
+    public Record lower(Record key) {
+        return elementAt(timeline.lowerBound(key.getTime().getTime()) - 1);
+    }
+
+    @Override
+    public Record higher(Record key) {
+        return elementAt(timeline.upperBound(key.getTime().getTime()));
+    }
+
+    @Override
+    protected Iterator<Record> rangeIterator(Record from, boolean fromInclusive, Record to, boolean toInclusive,
+                                             boolean ascending) {
+        int low = 0;
+        if (from != null) {
+            long time = from.getTime().getTime();
+            low = fromInclusive ? timeline.lowerBound(time) : timeline.upperBound(time);
+        }
+        int high = size();
+        if (to != null) {
+            long time = to.getTime().getTime();
+            high = toInclusive ? timeline.upperBound(time) : timeline.lowerBound(time);
+        }
+        return timeline.iterator(low, Math.max(low, high), ascending);
+    }
+
+    /* Returns the record at the given index, or null if the index is out of range. */
+    private Record elementAt(int index) {
+        return index < 0 || index >= size() ? null : timeline.get(index);
+    }
+
+    /**
+     * Returns <code>true</code> if the user appears in the records.
+     *
+     * @param user the name of the user.
+     * @return <code>true</code> if the user has records in this list, <code>false</code> otherwise.
+     */
+    public boolean containsUser(String user) {
+        return userRecords.containsKey(user);
     }
 
     /**
@@ -26,14 +256,18 @@ public class RecordList extends SortedLinkedList<Record> {
         if (user == null || user.trim().isEmpty()) {
             throw new IllegalArgumentException("Invalid user!");
         }
+        if (!containsUser(user)) {
+            throw new NoSuchElementException("No first session found for user " + user);
+        }
 
+        SortedTimestampList<Record> records = userRecords.get(user);
         Record firstLoginRecord = null;
 
         int i = 0;
         // find the first login record
-        for (; i < this.size(); i++) {
-            if (this.get(i).getUsername().equals(user) && this.get(i).isLogin()) {
-                firstLoginRecord = this.get(i);
+        for (; i < records.size(); i++) {
+            if (records.get(i).isLogin()) {
+                firstLoginRecord = records.get(i);
                 break;
             }
         }
@@ -41,17 +275,14 @@ public class RecordList extends SortedLinkedList<Record> {
         if (firstLoginRecord == null) {
             throw new NoSuchElementException("No first session found for user " + user);
         }
-        // continue to find the corresponding logout record with the same user, terminal.
-        for (; i < this.size(); i++) {
-            if (this.get(i).getUsername().equals(user) &&
-                    this.get(i).getTerminal() == firstLoginRecord.getTerminal() &&
-                    this.get(i).isLogout())
-                return new Session(firstLoginRecord, this.get(i));
+        // continue to find the corresponding logout record with the same terminal.
+        for (; i < records.size(); i++) {
+            if (records.get(i).getTerminal() == firstLoginRecord.getTerminal() && records.get(i).isLogout()) {
+                return new Session(firstLoginRecord, records.get(i));
+            }
         }
         //no corresponding logout record
         return new Session(firstLoginRecord, null);
-
-
     }
 
     /**
@@ -66,28 +297,33 @@ public class RecordList extends SortedLinkedList<Record> {
         if (user == null || user.trim().isEmpty()) {
             throw new IllegalArgumentException("Invalid user!");
         }
+        if (!containsUser(user)) {
+            throw new NoSuchElementException("No last session found for user " + user);
+        }
 
+        SortedTimestampList<Record> records = userRecords.get(user);
         Record lastLoginRecord = null;
-        int i = this.size() - 1;
-        // Iterate through the records in reverse order to find the last login record
-        for (; i >= 0; i--) {
-            if (this.get(i).getUsername().equals(user) && this.get(i).isLogin()) {
-                lastLoginRecord = this.get(i);
+        // Earliest logout record seen so far for each terminal of the user, i.e. the one
+        // that follows the current position most closely
+        HashMap<Integer, Record> nextLogouts = new HashMap<>();
+        // Walk backwards from the latest record to find the last login record
+        for (int i = records.size() - 1; i >= 0; i--) {
+            Record record = records.get(i);
+            if (record.isLogin()) {
+                lastLoginRecord = record;
                 break;
             }
+            nextLogouts.put(record.getTerminal(), record);
         }
 
         if (lastLoginRecord == null) {
             throw new NoSuchElementException("No last session found for user " + user);
         }
 
-        // Continue to find the corresponding logout record with the same user and terminal
-        for (; i < this.size(); i++) {
-            if (this.get(i).getUsername().equals(user) &&
-                    this.get(i).getTerminal() == lastLoginRecord.getTerminal() &&
-                    this.get(i).isLogout()) {
-                return new Session(lastLoginRecord, this.get(i));
-            }
+        // The corresponding logout record, if any, was already passed on the way back
+        Record logoutRecord = nextLogouts.get(lastLoginRecord.getTerminal());
+        if (logoutRecord != null) {
+            return new Session(lastLoginRecord, logoutRecord);
         }
 
         // No corresponding logout record, which means the session is still active
@@ -106,22 +342,16 @@ public class RecordList extends SortedLinkedList<Record> {
         if (user == null || user.trim().isEmpty()) {
             throw new IllegalArgumentException("Invalid user!");
         }
-
-        long totalTime = 0;
-
-        for (int i = 0; i < this.size(); i++) { // find login record
-            if (this.get(i).getUsername().equals(user) && this.get(i).isLogin()) {
-                for (int j = i+1; j < this.size(); j++) { // find the corresponding logout record
-                    if (this.get(j).getUsername().equals(user) &&
-                            this.get(j).getTerminal() == this.get(i).getTerminal() &&
-                            this.get(j).isLogout()) {
-                        totalTime += this.get(j).getTime().getTime() - this.get(i).getTime().getTime();
-                        break;
-                    }
-                }
-            }
+        if (!containsUser(user)) {
+            throw new NoSuchElementException("User " + user + " not found in the records.");
         }
 
+        // Each login is closed by the next logout on its terminal; active sessions add nothing
+        long totalTime = streamSessions(user)
+                .filter(session -> session.getDuration() != -1)
+                .mapToLong(Session::getDuration)
+                .sum();
+
         if (totalTime == 0) {
             throw new NoSuchElementException("User " + user + " not found in the records.");
         }
@@ -141,30 +371,217 @@ public class RecordList extends SortedLinkedList<Record> {
         if (user == null || user.trim().isEmpty()) {
             throw new IllegalArgumentException("Invalid user!");
         }
+        if (!containsUser(user)) {
+            throw new NoSuchElementException("No sessions found for user " + user);
+        }
         SortedLinkedList<Session> sessions = new SortedLinkedList<>();
+        streamSessions(user).forEach(sessions::add);
 
-        for (int i = 0; i < this.size(); i++) { // find login record
-            if (this.get(i).getUsername().equals(user) && this.get(i).isLogin()) {
-                int j = i+1;
-                for (; j < this.size(); j++) { // find the corresponding logout record
-                    if (this.get(j).getUsername().equals(user) &&
-                            this.get(j).getTerminal() == this.get(i).getTerminal() &&
-                            this.get(j).isLogout()) {
-                        sessions.add(new Session(this.get(i), this.get(j)) );
-                        break;
-                    }
+        if (sessions.size() == 0) {
+            throw new NoSuchElementException("No sessions found for user " + user);
+        }
+
+        return sessions;
+    }
+
+    /**
+     * Returns a sketch of the durations of the completed login sessions of the specified user,
+     * from which percentiles of the session length can be read. Active sessions are not included.
+     *
+     * @param user the name of the user.
+     * @return a copy of the duration sketch of the user.
+     * @throws IllegalArgumentException if the user is null or empty.
+     * @throws NoSuchElementException if the user has no completed sessions.
+     */
+    public DurationSketch getSessionDurations(String user) {
+        if (user == null || user.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid user!");
+        }
+        SessionTracker tracker = trackers.get(user);
+        if (tracker == null || tracker.current(user).getCount() == 0) {
+            throw new NoSuchElementException("No completed sessions found for user " + user);
+        }
+        return new DurationSketch(tracker.durations);
+    }
+
+    /**
+     * Returns a sketch of the durations of the completed login sessions of all users.
+     * Active sessions are not included.
+     *
+     * @return the merged duration sketch of all users.
+     * @throws NoSuchElementException if there are no completed sessions.
+     */
+    public DurationSketch getSessionDurations() {
+        DurationSketch sketch = new DurationSketch();
+        for (Map.Entry<String, SessionTracker> entry : trackers.entrySet()) {
+            sketch.merge(entry.getValue().current(entry.getKey()));
+        }
+        if (sketch.getCount() == 0) {
+            throw new NoSuchElementException("No completed sessions found.");
+        }
+        return sketch;
+    }
+
+    /**
+     * Returns a lazy stream of all login sessions for the specified user, ordered by login time.
+     * Sessions are produced while the records are scanned, so the first ones are available
+     * before the whole list has been read, and a short-circuiting operation such as
+     * <code>limit</code> stops the scan early.
+     *
+     * @param user the name of the user.
+     * @return a stream of the login sessions for the user, empty if the user has none.
+     * @throws IllegalArgumentException if the user is null or empty.
+     */
+    public Stream<Session> streamSessions(String user) {
+        if (user == null || user.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid user!");
+        }
+        if (!containsUser(user)) {
+            return Stream.empty();
+        }
+        Spliterator<Session> spliterator = Spliterators.spliteratorUnknownSize(new SessionCursor(user),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /* Inner class to pair up the records of one user into sessions in a single forward scan.
+     * A login is closed by the next logout on its terminal; sessions are handed out in login
+     * order, so an open session holds back the ones that started after it. */
+    private class SessionCursor implements Iterator<Session> {
+        private String user;
+        private SortedTimestampList<Record> records;
+        private int position = 0;
+        // Sessions not yet handed out, in login order
+        private ArrayDeque<PendingSession> pending = new ArrayDeque<>();
+        // Sessions still waiting for their logout record, by terminal
+        private HashMap<Integer, List<PendingSession>> open = new HashMap<>();
+
+        SessionCursor(String user) {
+            this.user = user;
+            this.records = userRecords.get(user);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ((pending.isEmpty() || !pending.peek().closed) && position < records.size()) {
+                scan(records.get(position++));
+            }
+            if (position == records.size()) {
+                // No more logout records: whatever is still open is an active session
+                for (PendingSession session : pending) {
+                    session.closed = true;
                 }
-                if (j == this.size()) {
-                    sessions.add(new Session(this.get(i), null) );
+                open.clear();
+            }
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public Session next() throws NoSuchElementException {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more sessions for user " + user);
+            }
+            PendingSession session = pending.poll();
+            return new Session(session.login, session.logout);
+        }
+
+        private void scan(Record record) {
+            if (record.isLogin()) {
+                PendingSession session = new PendingSession(record);
+                pending.add(session);
+                open.computeIfAbsent(record.getTerminal(), terminal -> new ArrayList<>()).add(session);
+                return;
+            }
+            List<PendingSession> sessions = open.remove(record.getTerminal());
+            if (sessions != null) {
+                for (PendingSession session : sessions) {
+                    session.logout = record;
+                    session.closed = true;
                 }
             }
         }
+    }
 
+    /* Inner class to follow the sessions of one user as the user's records are added.
+     * Each logout closes the open logins on its terminal, recording their durations in constant
+     * time. Only the user's own records matter, and records with equal times pair up in the order
+     * they were added, so anything not earlier than the user's latest record is an append. A record
+     * earlier than that may change how the user's records pair up and invalidates the tracker,
+     * which is then rebuilt from the user's own records the next time it is queried; rebuilding
+     * every tracker therefore reads each record once. */
+    private class SessionTracker {
+        DurationSketch durations = new DurationSketch();
+        // Login times of the sessions still open, by terminal
+        HashMap<Integer, LoginTimes> open = new HashMap<>();
+        // Time of the user's latest record
+        long latest = Long.MIN_VALUE;
+        boolean stale;
 
-        if (sessions.size() == 0) {
-            throw new NoSuchElementException("No sessions found for user " + user);
+        void update(Record record) {
+            long time = record.getTime().getTime();
+            if (time < latest) {
+                invalidate();
+            }
+            latest = Math.max(latest, time);
+            if (stale) {
+                return;
+            }
+            if (record.isLogin()) {
+                open.computeIfAbsent(record.getTerminal(), terminal -> new LoginTimes()).add(time);
+                return;
+            }
+            LoginTimes logins = open.remove(record.getTerminal());
+            if (logins != null) {
+                for (int i = 0; i < logins.size; i++) {
+                    durations.record(time - logins.times[i]);
+                }
+            }
         }
 
-        return sessions;
+        void invalidate() {
+            stale = true;
+            open.clear();
+        }
+
+        DurationSketch current(String user) {
+            if (stale) {
+                durations = new DurationSketch();
+                streamSessions(user).forEach(session -> {
+                    if (session.getDuration() == -1) {
+                        open.computeIfAbsent(session.getTerminal(), terminal -> new LoginTimes())
+                                .add(session.getLoginTime().getTime());
+                    } else {
+                        durations.record(session.getDuration());
+                    }
+                });
+                stale = false;
+            }
+            return durations;
+        }
+    }
+
+    /* Inner class to hold the login times of the open sessions on one terminal without boxing them.
+     * A terminal rarely has more than one open login, so the array starts with room for one. */
+    private static class LoginTimes {
+        long[] times = new long[1];
+        int size;
+
+        void add(long time) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+            }
+            times[size++] = time;
+        }
+    }
+
+    /* Inner class to represent a session whose logout record may not have been found yet.*/
+    private static class PendingSession {
+        Record login;
+        Record logout;
+        boolean closed;
+
+        PendingSession(Record login) {
+            this.login = login;
+        }
     }
 }
@@ -3,6 +3,7 @@ package project3;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 
 /**
  * The Session class represents a login session, which includes a login record and a logout record.
@@ -111,7 +112,12 @@ public class Session implements Comparable<Session> {
             return false;
         }
         Session other = (Session) obj;
-        return this.login.equals(other.login) &&
-                ((this.logout == null && other.logout == null) || this.logout.equals(other.logout));
+        return this.login.equals(other.login) && Objects.equals(this.logout, other.logout);
+    }
+
+    @Override
+    public int hashCode() {
+        // Hash the same records that equals compares
+        return Objects.hash(login, logout);
     }
 }
@@ -0,0 +1,275 @@
+package project3;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The ShardedRecordList class holds the records of several log sources, one RecordList per source,
+ * and answers session queries by fanning them out to every shard in parallel and merging the results.
+ * Sessions never span shards: a login and its logout always come from the same source.
+ *
+ * @author Leyan Yu
+ */
+public class ShardedRecordList {
+    private List<RecordList> shards;
+
+    /**
+     * Constructs a new ShardedRecordList over the given shards.
+     *
+     * @param shards the record lists of the individual sources.
+     * @throws IllegalArgumentException if the list of shards is null or contains null.
+     */
+    public ShardedRecordList(List<RecordList> shards) {
+        if (shards == null) {
+            throw new IllegalArgumentException("Shards cannot be null.");
+        }
+        for (RecordList shard : shards) {
+            if (shard == null) {
+                throw new IllegalArgumentException("Shards cannot be null.");
+            }
+        }
+        this.shards = new ArrayList<>(shards);
+    }
+
+    /**
+     * Returns the shards of this list.
+     *
+     * @return an unmodifiable list of the record lists of the individual sources.
+     */
+    public List<RecordList> getShards() {
+        return Collections.unmodifiableList(shards);
+    }
+
+    /**
+     * Returns <code>true</code> if the user appears in the records of any shard.
+     *
+     * @param user the name of the user.
+     * @return <code>true</code> if some shard has records of the user, <code>false</code> otherwise.
+     */
+    public boolean containsUser(String user) {
+        for (RecordList shard : shards) {
+            if (shard.containsUser(user)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the first login session for the specified user across all shards.
+     *
+     * @param user the name of the user.
+     * @return the first login session for the user.
+     * @throws IllegalArgumentException if the user is null or empty.
+     * @throws NoSuchElementException if no first session is found for the user.
+     */
+    public Session getFirstSession(String user) {
+        checkUser(user);
+        return scatter(shard -> shard.getFirstSession(user)).stream()
+                .min(Session::compareTo)
+                .orElseThrow(() -> new NoSuchElementException("No first session found for user " + user));
+    }
+
+    /**
+     * Returns the last login session for the specified user across all shards.
+     * Of sessions with equal login times, the one from the later shard is returned, matching the
+     * order in which <code>getAllSessions</code> lists them.
+     *
+     * @param user the name of the user.
+     * @return the last login session for the user.
+     * @throws IllegalArgumentException if the user is null or empty.
+     * @throws NoSuchElementException if no last session is found for the user.
+     */
+    public Session getLastSession(String user) {
+        checkUser(user);
+        // The results are in shard order, so keeping the later of two equal sessions favours the later shard
+        return scatter(shard -> shard.getLastSession(user)).stream()
+                .reduce((last, session) -> session.compareTo(last) >= 0 ? session : last)
+                .orElseThrow(() -> new NoSuchElementException("No last session found for user " + user));
+    }
+
+    /**
+     * Returns the total amount of time in milliseconds that the user was logged in across all shards.
+     *
+     * @param user the name of the user.
+     * @return the total login time in milliseconds for the user.
+     * @throws IllegalArgumentException if the user is null or empty.
+     * @throws NoSuchElementException if the user is not found in the records.
+     */
+    public long getTotalTime(String user) {
+        checkUser(user);
+        long totalTime = 0;
+        for (long time : scatter(shard -> shard.getTotalTime(user))) {
+            totalTime += time;
+        }
+        if (totalTime == 0) {
+            throw new NoSuchElementException("User " + user + " not found in the records.");
+        }
+        return totalTime;
+    }
+
+    /**
+     * Returns a list of all login sessions for the specified user across all shards, ordered by login time.
+     * The shards are scanned in parallel and their already sorted results are combined with a k-way merge.
+     *
+     * @param user the name of the user.
+     * @return a list of all login sessions for the user.
+     * @throws IllegalArgumentException if the user is null or empty.
+     * @throws NoSuchElementException if no sessions are found for the user.
+     */
+    public SortedLinkedList<Session> getAllSessions(String user) {
+        checkUser(user);
+        List<Iterator<Session>> results = new ArrayList<>();
+        for (List<Session> result : scatter(shard -> shard.streamSessions(user).collect(Collectors.toList()))) {
+            results.add(result.iterator());
+        }
+        SortedLinkedList<Session> sessions = new SortedLinkedList<>();
+        merge(results).forEachRemaining(sessions::add);
+        if (sessions.size() == 0) {
+            throw new NoSuchElementException("No sessions found for user " + user);
+        }
+        return sessions;
+    }
+
+    /**
+     * Returns a sketch of the durations of the completed login sessions of the specified user
+     * across all shards, merged from the sketches of the shards.
+     *
+     * @param user the name of the user.
+     * @return the merged duration sketch of the user.
+     * @throws IllegalArgumentException if the user is null or empty.
+     * @throws NoSuchElementException if the user has no completed sessions.
+     */
+    public DurationSketch getSessionDurations(String user) {
+        checkUser(user);
+        DurationSketch sketch = new DurationSketch();
+        for (DurationSketch shardSketch : scatter(shard -> shard.getSessionDurations(user))) {
+            sketch.merge(shardSketch);
+        }
+        if (sketch.getCount() == 0) {
+            throw new NoSuchElementException("No completed sessions found for user " + user);
+        }
+        return sketch;
+    }
+
+    /**
+     * Returns a sketch of the durations of the completed login sessions of all users across all shards.
+     *
+     * @return the merged duration sketch of all users.
+     * @throws NoSuchElementException if there are no completed sessions.
+     */
+    public DurationSketch getSessionDurations() {
+        DurationSketch sketch = new DurationSketch();
+        for (DurationSketch shardSketch : scatter(shard -> shard.getSessionDurations())) {
+            sketch.merge(shardSketch);
+        }
+        if (sketch.getCount() == 0) {
+            throw new NoSuchElementException("No completed sessions found.");
+        }
+        return sketch;
+    }
+
+    /**
+     * Returns a lazy stream of all login sessions for the specified user across all shards,
+     * ordered by login time. The lazy per-shard streams are merged as sessions are consumed,
+     * so no shard is scanned further than the results taken from the stream require.
+     *
+     * @param user the name of the user.
+     * @return a stream of the login sessions for the user, empty if the user has none.
+     * @throws IllegalArgumentException if the user is null or empty.
+     */
+    public Stream<Session> streamSessions(String user) {
+        checkUser(user);
+        List<Iterator<Session>> streams = new ArrayList<>();
+        for (RecordList shard : shards) {
+            streams.add(shard.streamSessions(user).iterator());
+        }
+        Spliterator<Session> spliterator = Spliterators.spliteratorUnknownSize(merge(streams),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /* Validates the user name in the same way as RecordList. */
+    private static void checkUser(String user) {
+        if (user == null || user.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid user!");
+        }
+    }
+
+    /* Runs the query on every shard in parallel and gathers the results of the shards that have any. */
+    private <T> List<T> scatter(Function<RecordList, T> query) {
+        List<T> results = new ArrayList<>();
+        shards.parallelStream()
+                .map(shard -> {
+                    try {
+                        return query.apply(shard);
+                    } catch (NoSuchElementException e) {
+                        return null; // this shard has nothing for the user
+                    }
+                })
+                .filter(Objects::nonNull)
+                .forEachOrdered(results::add);
+        return results;
+    }
+
+    /* Returns a lazy k-way merge of the given session iterators, each already ordered by login time.
+     * Sessions with equal login times keep their order within a source, and earlier sources go first. */
+    private static Iterator<Session> merge(List<Iterator<Session>> sources) {
+        // Each queue entry is the next session of one source together with that source's iterator
+        PriorityQueue<MergeHead> heads = new PriorityQueue<>();
+        for (int i = 0; i < sources.size(); i++) {
+            Iterator<Session> it = sources.get(i);
+            if (it.hasNext()) {
+                heads.add(new MergeHead(it.next(), it, i));
+            }
+        }
+        return new Iterator<Session>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Session next() throws NoSuchElementException {
+                if (heads.isEmpty()) {
+                    throw new NoSuchElementException("No more sessions");
+                }
+                MergeHead head = heads.poll();
+                if (head.rest.hasNext()) {
+                    heads.add(new MergeHead(head.rest.next(), head.rest, head.source));
+                }
+                return head.session;
+            }
+        };
+    }
+
+    /* Inner class to represent the next unmerged session of one shard.*/
+    private static class MergeHead implements Comparable<MergeHead> {
+        Session session;
+        Iterator<Session> rest;
+        int source;
+
+        MergeHead(Session session, Iterator<Session> rest, int source) {
+            this.session = session;
+            this.rest = rest;
+            this.source = source;
+        }
+
+        @Override
+        public int compareTo(MergeHead other) {
+            int cmp = session.compareTo(other.session);
+            return cmp != 0 ? cmp : Integer.compare(source, other.source);
+        }
+    }
+}
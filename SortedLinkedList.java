@@ -1,28 +1,64 @@
 package project3;
 
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.TreeMap;
 
 /**
  * This is an implementation of a sorted doubly-linked list.
  * All elements in the list are maintained in ascending/increasing order
  * based on the natural order of the elements.
  * This list does not allow <code>null</code> elements.
+ * Elements that compare as equal form a contiguous run, kept in the order in
+ * which they were added; a tree of these runs locates insertion points and
+ * range boundaries in logarithmic time.
  *
  * @author Leyan Yu
  *
  * @param <E> the type of elements held in this list
  */
-public class SortedLinkedList<E extends Comparable<E>> implements Iterable<E> {
+public class SortedLinkedList<E extends Comparable<E>> extends AbstractSortedList<E> {
 
     private Node head;
     private Node tail;
     private int size;
+    // Optional hash index from an element to the node holding its first occurrence
+    private HashMap<E, Node> index;
+    // Ordered index from each distinct key to the run of nodes comparing equal to it
+    private TreeMap<E, Run> runs;
 
     public SortedLinkedList() {
         head = null;
         tail = null;
         size = 0;
+        runs = new TreeMap<>();
+    }
+
+    /**
+     * Constructs an empty list, optionally maintaining a hash index alongside it.
+     * With the index enabled, <code>contains</code> and <code>remove</code> run in
+     * expected constant time and <code>indexOf</code> rejects missing elements without
+     * scanning. The elements must then provide a <code>hashCode</code> consistent with
+     * <code>equals</code>, and equal elements must compare as equal.
+     *
+     * @param indexed <code>true</code> to maintain the hash index
+     */
+    public SortedLinkedList(boolean indexed) {
+        this();
+        if (indexed) {
+            index = new HashMap<>();
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if this list maintains a hash index of its elements.
+     *
+     * @return <code>true</code> if the list is indexed
+     */
+    public boolean isIndexed() {
+        return index != null;
     }
 
     /**
@@ -39,28 +75,37 @@ public class SortedLinkedList<E extends Comparable<E>> implements Iterable<E> {
 
         Node newNode = new Node(element);
 
-        if (head == null) {
-            head = newNode;
-            tail = newNode;
-        } else if (element.compareTo(head.data) < 0) {
-            newNode.next = head;
-            head.prev = newNode;
+        // The new node goes after any equal elements, or else in front of the first greater one
+        Map.Entry<E, Run> successor = runs.ceilingEntry(element);
+        Run run = successor != null && successor.getKey().compareTo(element) == 0 ? successor.getValue() : null;
+        Node next;
+        if (run != null) {
+            next = run.last.next;
+        } else {
+            next = successor == null ? null : successor.getValue().first;
+        }
+        newNode.next = next;
+        newNode.prev = next == null ? tail : next.prev;
+        if (newNode.prev != null) {
+            newNode.prev.next = newNode;
+        } else {
             head = newNode;
+        }
+        if (next != null) {
+            next.prev = newNode;
         } else {
-            Node current = head;
-            while (current.next != null && element.compareTo(current.next.data) > 0) {
-                current = current.next;
-            }
-            newNode.prev = current;
-            newNode.next = current.next;
-            if (current.next != null) {
-                current.next.prev = newNode;
-            } else {
-                tail = newNode;
-            }
-            current.next = newNode;
+            tail = newNode;
         }
 
+        if (run != null) {
+            run.last = newNode;
+        } else {
+            runs.put(element, new Run(newNode));
+        }
+        if (index != null) {
+            // New nodes close their run, so an equal element already indexed stays the first occurrence
+            index.putIfAbsent(element, newNode);
+        }
         size++;
         return true;
     }
@@ -72,6 +117,10 @@ public class SortedLinkedList<E extends Comparable<E>> implements Iterable<E> {
         head = null;
         tail = null;
         size = 0;
+        runs.clear();
+        if (index != null) {
+            index.clear();
+        }
     }
 
     /**
@@ -86,6 +135,9 @@ public class SortedLinkedList<E extends Comparable<E>> implements Iterable<E> {
         if (o == null) {
             return false;
         }
+        if (index != null) {
+            return index.containsKey(o);
+        }
 
         for (E element : this) {
             if (element.equals(o)) {
@@ -109,14 +161,97 @@ public class SortedLinkedList<E extends Comparable<E>> implements Iterable<E> {
             throw new IndexOutOfBoundsException("Index out of range");
         }
 
-        Node current = head;
-        for (int i = 0; i < index; i++) {
-            current = current.next;
+        // Walk from whichever end of the list is closer
+        Node current;
+        if (index < size / 2) {
+            current = head;
+            for (int i = 0; i < index; i++) {
+                current = current.next;
+            }
+        } else {
+            current = tail;
+            for (int i = size - 1; i > index; i--) {
+                current = current.prev;
+            }
         }
 
         return current.data;
     }
 
+    /**
+     * Returns the first (lowest) element in the list.
+     *
+     * @return the first element in the list
+     * @throws NoSuchElementException if the list is empty
+     */
+    public E first() throws NoSuchElementException {
+        if (head == null) {
+            throw new NoSuchElementException("The list is empty");
+        }
+        return head.data;
+    }
+
+    /**
+     * Returns the last (highest) element in the list.
+     *
+     * @return the last element in the list
+     * @throws NoSuchElementException if the list is empty
+     */
+    public E last() throws NoSuchElementException {
+        if (tail == null) {
+            throw new NoSuchElementException("The list is empty");
+        }
+        return tail.data;
+    }
+
+    /**
+     * Returns the greatest element in the list less than or equal to the given key,
+     * or <code>null</code> if there is no such element.
+     *
+     * @param key the key to search for
+     * @return the last element not greater than <code>key</code>, or <code>null</code>
+     */
+    public E floor(E key) {
+        Map.Entry<E, Run> entry = runs.floorEntry(key);
+        return entry == null ? null : entry.getValue().last.data;
+    }
+
+    /**
+     * Returns the least element in the list greater than or equal to the given key,
+     * or <code>null</code> if there is no such element.
+     *
+     * @param key the key to search for
+     * @return the first element not less than <code>key</code>, or <code>null</code>
+     */
+    public E ceiling(E key) {
+        Map.Entry<E, Run> entry = runs.ceilingEntry(key);
+        return entry == null ? null : entry.getValue().first.data;
+    }
+
+    /**
+     * Returns the greatest element in the list strictly less than the given key,
+     * or <code>null</code> if there is no such element.
+     *
+     * @param key the key to search for
+     * @return the last element less than <code>key</code>, or <code>null</code>
+     */
+    public E lower(E key) {
+        Map.Entry<E, Run> entry = runs.lowerEntry(key);
+        return entry == null ? null : entry.getValue().last.data;
+    }
+
+    /**
+     * Returns the least element in the list strictly greater than the given key,
+     * or <code>null</code> if there is no such element.
+     *
+     * @param key the key to search for
+     * @return the first element greater than <code>key</code>, or <code>null</code>
+     */
+    public E higher(E key) {
+        Map.Entry<E, Run> entry = runs.higherEntry(key);
+        return entry == null ? null : entry.getValue().first.data;
+    }
+
     /**
      * Returns the index of the first occurrence of the specified element in the list,
      * or -1 if the element is not in the list.
@@ -129,6 +264,10 @@ public class SortedLinkedList<E extends Comparable<E>> implements Iterable<E> {
         if (o == null) {
             return -1;
         }
+        if (this.index != null) {
+            Node node = this.index.get(o);
+            return node == null ? -1 : positionOf(node);
+        }
 
         Node current = head;
         int index = 0;
@@ -159,6 +298,16 @@ public class SortedLinkedList<E extends Comparable<E>> implements Iterable<E> {
         if (o == null || index < 0 || index >= size) {
             return -1;
         }
+        if (this.index != null) {
+            Node node = this.index.get(o);
+            if (node == null) {
+                return -1;
+            }
+            int position = positionOf(node);
+            if (position >= index) {
+                return position;
+            }
+        }
 
         Node current = head;
         int currentIndex = 0;
@@ -190,24 +339,20 @@ public class SortedLinkedList<E extends Comparable<E>> implements Iterable<E> {
         if (o == null) {
             return false;
         }
+        if (index != null) {
+            Node node = index.get(o);
+            if (node == null) {
+                return false;
+            }
+            unlink(node);
+            return true;
+        }
 
         Node current = head;
 
         while (current != null) {
             if (current.data.equals(o)) {
-                if (current.prev != null) {
-                    current.prev.next = current.next;
-                } else {
-                    head = current.next;
-                }
-
-                if (current.next != null) {
-                    current.next.prev = current.prev;
-                } else {
-                    tail = current.prev;
-                }
-
-                size--;
+                unlink(current);
                 return true;
             }
 
@@ -217,6 +362,60 @@ public class SortedLinkedList<E extends Comparable<E>> implements Iterable<E> {
         return false;
     }
 
+    /* Unlinks the given node from the list, keeping the run tree and hash index up to date. */
+    private void unlink(Node node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            head = node.next;
+        }
+
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        } else {
+            tail = node.prev;
+        }
+
+        Run run = runs.get(node.data);
+        if (run.first == node && run.last == node) {
+            runs.remove(node.data);
+        } else if (run.first == node) {
+            run.first = node.next;
+        } else if (run.last == node) {
+            run.last = node.prev;
+        }
+        if (index != null) {
+            indexRemoved(node);
+        }
+        size--;
+    }
+
+    /* Drops an unlinked node from the hash index, promoting the next equal node in its run if any.
+     * Equal elements compare as equal, so they sit in one contiguous run and only that run is walked. */
+    private void indexRemoved(Node node) {
+        if (index.get(node.data) != node) {
+            return;
+        }
+        Node current = node.next;
+        while (current != null && current.data.compareTo(node.data) == 0) {
+            if (current.data.equals(node.data)) {
+                index.put(current.data, current);
+                return;
+            }
+            current = current.next;
+        }
+        index.remove(node.data);
+    }
+
+    /* Returns the position of a linked node by counting its predecessors. */
+    private int positionOf(Node node) {
+        int position = 0;
+        for (Node current = node.prev; current != null; current = current.prev) {
+            position++;
+        }
+        return position;
+    }
+
     /**
      * Returns the size of the list.
      *
@@ -232,61 +431,16 @@ public class SortedLinkedList<E extends Comparable<E>> implements Iterable<E> {
      * @return an iterator over the elements in the list
      */
     public Iterator<E> iterator() {
-        return new ListIterator();
-    }
-
-    /**
-     * Compares the specified object with this list for equality.
-     *
-     * @param o the object to compare with
-     * @return <code>true</code> if the specified object is equal to this list,
-     * <code>false</code> otherwise
-     */
-    public boolean equals(Object o) {
-        if (o == this) {
-            return true;
-        }
-
-        if (!(o instanceof SortedLinkedList)) {
-            return false;
-        }
-
-        SortedLinkedList<?> other = (SortedLinkedList<?>) o;
-
-        if (size() != other.size()) {
-            return false;
-        }
-
-        Iterator<E> it1 = iterator();
-        Iterator<?> it2 = other.iterator();
-
-        while (it1.hasNext() && it2.hasNext()) {
-            if (!it1.next().equals(it2.next())) {
-                return false;
-            }
-        }
-
-        return !it1.hasNext() && !it2.hasNext();
+        return new ListIterator(head, null, true);
     }
 
     /**
-     * Returns a string representation of the list.
-     *  The string representation consists of a list of the lists's elements in
-     *  ascending order, enclosed in square brackets ("[]").
-     *  Adjacent elements are separated by the characters ", " (comma and space).
+     * Returns an iterator over the elements in the list in descending order, starting from the tail.
      *
-     * @return a string representation of the list
+     * @return a descending iterator over the elements in the list
      */
-    public String toString() {
-        StringBuilder result = new StringBuilder("[");
-        for (E element : this) {
-            result.append(element).append(", ");
-        }
-        if (size() > 0) {
-            result.setLength(result.length() - 2); // Remove trailing comma and space
-        }
-        result.append("]");
-        return result.toString();
+    public Iterator<E> descendingIterator() {
+        return new ListIterator(tail, null, false);
     }
 
     /* Inner class to represent nodes of this list.*/
@@ -301,9 +455,28 @@ public class SortedLinkedList<E extends Comparable<E>> implements Iterable<E> {
         }
     }
 
-    /* Inner class to represent nodes of this list.*/
+    /* Inner class to represent a run of consecutive nodes whose elements compare as equal.*/
+    private class Run {
+        Node first;
+        Node last;
+
+        Run(Node node) {
+            first = node;
+            last = node;
+        }
+    }
+
+    /* Inner class to iterate over the nodes from a start node to an end node, in either direction.*/
     private class ListIterator implements Iterator<E> {
-        private Node nextToReturn = head;
+        private Node nextToReturn;
+        private Node end;
+        private boolean ascending;
+
+        ListIterator(Node start, Node end, boolean ascending) {
+            this.nextToReturn = start;
+            this.end = end;
+            this.ascending = ascending;
+        }
 
         @Override
         public boolean hasNext() {
@@ -316,8 +489,44 @@ public class SortedLinkedList<E extends Comparable<E>> implements Iterable<E> {
                 throw new NoSuchElementException("End of the list reached");
             }
             E tmp = nextToReturn.data;
-            nextToReturn = nextToReturn.next;
+            if (nextToReturn == end) {
+                nextToReturn = null;
+            } else {
+                nextToReturn = ascending ? nextToReturn.next : nextToReturn.prev;
+            }
             return tmp;
         }
     }
+
+    @Override
+    protected Iterator<E> rangeIterator(E from, boolean fromInclusive, E to, boolean toInclusive,
+                                        boolean ascending) {
+        // Find the first node in the range, if the range is not empty
+        Node low;
+        if (from == null) {
+            low = head;
+        } else {
+            Map.Entry<E, Run> entry = fromInclusive ? runs.ceilingEntry(from) : runs.higherEntry(from);
+            low = entry == null ? null : entry.getValue().first;
+        }
+        if (low != null && to != null) {
+            int cmp = low.data.compareTo(to);
+            if (cmp > 0 || (cmp == 0 && !toInclusive)) {
+                low = null;
+            }
+        }
+        if (low == null) {
+            return new ListIterator(null, null, ascending);
+        }
+
+        // The range is not empty, so it has a last node as well
+        Node high;
+        if (to == null) {
+            high = tail;
+        } else {
+            Map.Entry<E, Run> entry = toInclusive ? runs.floorEntry(to) : runs.lowerEntry(to);
+            high = entry.getValue().last;
+        }
+        return ascending ? new ListIterator(low, high, true) : new ListIterator(high, low, false);
+    }
 }
@@ -0,0 +1,328 @@
+package project3;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This is an implementation of a sorted array-backed list keyed on primitive timestamps.
+ * Each element is stored together with a <code>long</code> key (e.g. epoch milliseconds)
+ * in parallel arrays, and the elements are maintained in ascending order of their keys.
+ * Searching and ordering only ever compare the keys, so no boxing or
+ * <code>compareTo</code> calls are involved.
+ * Elements with equal keys are kept in the order in which they were added.
+ * This list does not allow <code>null</code> elements.
+ *
+ * Adding in key order, as a log is usually read, appends in constant amortized time.
+ * Elements that arrive out of order are buffered and sorted into the list in bulk
+ * the next time the list is read, so a shuffled load costs O(n log n) overall.
+ *
+ * @author Leyan Yu
+ *
+ * @param <E> the type of elements held in this list
+ */
+public class SortedTimestampList<E> implements Iterable<E> {
+    // Capacity of the arrays once the first element arrives; most per-user lists stay small
+    private static final int DEFAULT_CAPACITY = 4;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    // Elements added out of order, in the order they arrived, waiting to be sorted in
+    private long[] pendingKeys;
+    private Object[] pendingValues;
+    private int pendingSize;
+
+    public SortedTimestampList() {
+        // The arrays are allocated when needed, so an in-order list never allocates a buffer
+        keys = new long[0];
+        values = new Object[0];
+        size = 0;
+        pendingKeys = new long[0];
+        pendingValues = new Object[0];
+        pendingSize = 0;
+    }
+
+    /**
+     * Adds the specified element to the list in ascending order of the key,
+     * after any elements with an equal key.
+     *
+     * @param key the key of the element
+     * @param element the element to add
+     * @return <code>true</code> if the element was added successfully,
+     * <code>false</code> otherwise (if <code>element==null</code>)
+     */
+    public boolean add(long key, E element) {
+        if (element == null) {
+            return false;
+        }
+        if (pendingSize == 0 && (size == 0 || key >= keys[size - 1])) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(DEFAULT_CAPACITY, size * 2));
+                values = Arrays.copyOf(values, keys.length);
+            }
+            keys[size] = key;
+            values[size] = element;
+            size++;
+        } else {
+            if (pendingSize == pendingKeys.length) {
+                pendingKeys = Arrays.copyOf(pendingKeys, Math.max(DEFAULT_CAPACITY, pendingSize * 2));
+                pendingValues = Arrays.copyOf(pendingValues, pendingKeys.length);
+            }
+            pendingKeys[pendingSize] = key;
+            pendingValues[pendingSize] = element;
+            pendingSize++;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the first element with the specified key that is equal to <code>o</code>.
+     *
+     * @param key the key of the element to remove
+     * @param o the element to remove
+     * @return <code>true</code> if the element was removed successfully,
+     * <code>false</code> otherwise
+     */
+    public boolean remove(long key, Object o) {
+        int index = indexOf(key, o, 0);
+        if (index == -1) {
+            return false;
+        }
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        values[size] = null;
+        return true;
+    }
+
+    /**
+     * Returns the index of the first element at or after <code>from</code> that has the
+     * specified key and is equal to <code>o</code>, or -1 if there is no such element.
+     * Only the elements with an equal key are compared.
+     *
+     * @param key the key of the element to search for
+     * @param o the element to search for
+     * @param from the index to start searching from
+     * @return the index of the element, or -1 if it is not found
+     */
+    public int indexOf(long key, Object o, int from) {
+        if (o == null) {
+            return -1;
+        }
+        for (int i = Math.max(from, lowerBound(key)); i < size && keys[i] == key; i++) {
+            if (values[i].equals(o)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes all elements from the list.
+     */
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        Arrays.fill(pendingValues, 0, pendingSize, null);
+        size = 0;
+        pendingSize = 0;
+    }
+
+    /**
+     * Returns the element at the specified index in the list.
+     *
+     * @param index the index of the element to return
+     * @return the element at the specified index
+     * @throws IndexOutOfBoundsException if the index is out of
+     * range <code>(index < 0 || index >= size())</code>
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int index) throws IndexOutOfBoundsException {
+        flush();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index out of range");
+        }
+        return (E) values[index];
+    }
+
+    /**
+     * Returns the key of the element at the specified index in the list.
+     *
+     * @param index the index of the key to return
+     * @return the key at the specified index
+     * @throws IndexOutOfBoundsException if the index is out of
+     * range <code>(index < 0 || index >= size())</code>
+     */
+    public long getKey(int index) throws IndexOutOfBoundsException {
+        flush();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index out of range");
+        }
+        return keys[index];
+    }
+
+    /**
+     * Returns the index of the first element whose key is greater than or equal to <code>key</code>,
+     * or <code>size()</code> if there is no such element.
+     *
+     * @param key the key to search for
+     * @return the index of the first element not less than <code>key</code>
+     */
+    public int lowerBound(long key) {
+        flush();
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the first element whose key is strictly greater than <code>key</code>,
+     * or <code>size()</code> if there is no such element.
+     *
+     * @param key the key to search for
+     * @return the index of the first element greater than <code>key</code>
+     */
+    public int upperBound(long key) {
+        flush();
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the size of the list.
+     *
+     * @return the size of the list
+     */
+    public int size() {
+        return size + pendingSize;
+    }
+
+    /**
+     * Returns an iterator over the elements in the list.
+     *
+     * @return an iterator over the elements in the list
+     */
+    public Iterator<E> iterator() {
+        return iterator(0, size(), true);
+    }
+
+    /**
+     * Returns an iterator over the elements in the list in descending order.
+     *
+     * @return a descending iterator over the elements in the list
+     */
+    public Iterator<E> descendingIterator() {
+        return iterator(0, size(), false);
+    }
+
+    /**
+     * Returns an iterator over the elements with indexes in the range <code>from <= i < to</code>.
+     *
+     * @param from the lowest index to return
+     * @param to the index after the highest one to return
+     * @param ascending <code>true</code> to iterate in ascending order, <code>false</code> for descending
+     * @return an iterator over the elements in the range
+     */
+    public Iterator<E> iterator(int from, int to, boolean ascending) {
+        return new Iterator<E>() {
+            private int nextToReturn = ascending ? from : to - 1;
+
+            @Override
+            public boolean hasNext() {
+                return ascending ? nextToReturn < to : nextToReturn >= from;
+            }
+
+            @Override
+            public E next() throws NoSuchElementException {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("End of the list reached");
+                }
+                E tmp = get(nextToReturn);
+                nextToReturn += ascending ? 1 : -1;
+                return tmp;
+            }
+        };
+    }
+
+    /* Sorts the buffered elements and merges them into the list, in place from the back. */
+    private void flush() {
+        if (pendingSize == 0) {
+            return;
+        }
+        sort(pendingKeys, pendingValues, pendingSize);
+        int total = size + pendingSize;
+        if (total > keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(total, keys.length * 2));
+            values = Arrays.copyOf(values, keys.length);
+        }
+        int i = size - 1;
+        int j = pendingSize - 1;
+        for (int k = total - 1; j >= 0; k--) {
+            // On equal keys the buffered element was added later, so it goes last
+            if (i >= 0 && keys[i] > pendingKeys[j]) {
+                keys[k] = keys[i];
+                values[k] = values[i--];
+            } else {
+                keys[k] = pendingKeys[j];
+                values[k] = pendingValues[j--];
+            }
+        }
+        Arrays.fill(pendingValues, 0, pendingSize, null);
+        size = total;
+        pendingSize = 0;
+    }
+
+    /* Stable bottom-up merge sort of the first n keys, moving the values along with them. */
+    private static void sort(long[] keys, Object[] values, int n) {
+        long[] keyBuffer = new long[n];
+        Object[] valueBuffer = new Object[n];
+        long[] srcKeys = keys;
+        Object[] srcValues = values;
+        long[] dstKeys = keyBuffer;
+        Object[] dstValues = valueBuffer;
+        for (int width = 1; width < n; width *= 2) {
+            for (int low = 0; low < n; low += 2 * width) {
+                int mid = Math.min(low + width, n);
+                int high = Math.min(low + 2 * width, n);
+                int left = low;
+                int right = mid;
+                for (int k = low; k < high; k++) {
+                    if (left < mid && (right >= high || srcKeys[left] <= srcKeys[right])) {
+                        dstKeys[k] = srcKeys[left];
+                        dstValues[k] = srcValues[left++];
+                    } else {
+                        dstKeys[k] = srcKeys[right];
+                        dstValues[k] = srcValues[right++];
+                    }
+                }
+            }
+            long[] tmpKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = tmpKeys;
+            Object[] tmpValues = srcValues;
+            srcValues = dstValues;
+            dstValues = tmpValues;
+        }
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, n);
+            System.arraycopy(srcValues, 0, values, 0, n);
+        }
+    }
+}